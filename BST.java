@@ -1,3 +1,8 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
 /**
  * Generic Class to implement a Binary Search Tree
  * @param <E> the type of elements maintained by this tree
@@ -5,7 +10,7 @@
  * @version Java 11 / VSCode
  * @since 2024-6-24 (date of last revision)
  */
-public class BST<E extends Comparable<E>> {
+public class BST<E extends Comparable<E>> implements Iterable<E> {
     // Data members
     private TreeNode root;
     private int size;
@@ -137,7 +142,6 @@ public class BST<E extends Comparable<E>> {
         if (node.left == null && node.right == null) {
             if (parent == null) {
                 root = null;
-                size = 0;
             } else if (parent.left == node)
                 parent.left = null;
             else
@@ -176,6 +180,86 @@ public class BST<E extends Comparable<E>> {
         return true;
     }
 
+    /**
+     * Method iterator
+     * @return an iterator over the values of the tree in ascending order; it does not support remove, and the tree must not be modified while it is in use
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private final ArrayDeque<TreeNode> stack = pushLeft(new ArrayDeque<>(), root);
+
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public E next() {
+                if (stack.isEmpty())
+                    throw new NoSuchElementException();
+                TreeNode node = stack.pop();
+                pushLeft(stack, node.right);
+                return node.value;
+            }
+        };
+    }
+
+    /**
+     * Iterator Helper Method to push a node and all its left descendants onto a stack
+     * @param stack the stack of nodes still to be visited
+     * @param node where the method starts
+     * @return the stack
+     */
+    private ArrayDeque<TreeNode> pushLeft(ArrayDeque<TreeNode> stack, TreeNode node) {
+        while (node != null) {
+            stack.push(node);
+            node = node.left;
+        }
+        return stack;
+    }
+
+    /**
+     * Method loadSorted to replace the contents of the tree with values given in strictly ascending order.
+     * The tree is built balanced in linear time, and is left unchanged if an exception is thrown.
+     * @param values the values, in strictly ascending order
+     * @param count the number of values to take from the iterator
+     * @throws IllegalArgumentException if count is negative or the values are not in strictly ascending order
+     * @throws NoSuchElementException if the iterator has fewer than count values
+     */
+    public void loadSorted(Iterator<E> values, int count) {
+        if (count < 0)
+            throw new IllegalArgumentException("Negative count: " + count);
+        ArrayList<E> previous = new ArrayList<>(1);
+        root = buildSorted(values, count, previous);
+        size = count;
+    }
+
+    /**
+     * loadSorted Recursive Helper Method to build a balanced subtree from the next values of an iterator
+     * @param values the values, in strictly ascending order
+     * @param count the number of values in the subtree
+     * @param previous holds the last value taken, if any
+     * @return the root of the subtree
+     */
+    private TreeNode buildSorted(Iterator<E> values, int count, ArrayList<E> previous) {
+        if (count == 0)
+            return null;
+        int leftCount = (count - 1) / 2;
+        TreeNode left = buildSorted(values, leftCount, previous);
+        E value = values.next();
+        if (previous.isEmpty())
+            previous.add(value);
+        else if (previous.get(0).compareTo(value) >= 0)
+            throw new IllegalArgumentException("Values are not in ascending order: " + value);
+        else
+            previous.set(0, value);
+        TreeNode node = new TreeNode(value);
+        node.left = left;
+        node.right = buildSorted(values, count - 1 - leftCount, previous);
+        return node;
+    }
+
     /**
      * Inorder Traversal Method
      */
@@ -0,0 +1,589 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+
+/**
+ * Streaming export and import of TreeMap and BST contents in a length-prefixed
+ * binary format. A stream starts with a magic number (MAP_MAGIC or BST_MAGIC)
+ * and the number of records, both as big-endian ints. A map record is its key
+ * followed by its value and a BST record is its value; each of them is written
+ * as an int byte length followed by the bytes produced by its codec, with a
+ * length of -1 standing for null.
+ *
+ * All the I/O goes through one large reusable ByteBuffer, which grows only when
+ * a single value does not fit in it. The streams passed in are flushed but not
+ * closed.
+ *
+ * Importing replaces the contents of the tree. Since the stream starts with the
+ * record count, the balanced tree is built directly as the records are read,
+ * without holding them in a list first. The input must end right after the
+ * last record; extra bytes are reported as an error.
+ *
+ * @author Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since 2024-6-24 (date of last revision)
+ */
+public class BinaryFormat {
+    /** Magic number starting a TreeMap stream ("TMAP") */
+    public static final int MAP_MAGIC = 0x544D4150;
+    /** Magic number starting a BST stream ("TBST") */
+    public static final int BST_MAGIC = 0x54425354;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_FIELD_SIZE = Integer.MAX_VALUE - 8; // the largest array most JVMs allocate
+
+    /**
+     * Utility class, not meant to be instantiated.
+     */
+    private BinaryFormat() {
+    }
+
+    /**
+     * Writes the entries of a map to an OutputStream.
+     *
+     * @param <K> the type of keys of the map
+     * @param <V> the type of values of the map
+     * @param map the map to export
+     * @param keyCodec the codec of the keys
+     * @param valueCodec the codec of the values
+     * @param out the stream to write to
+     * @throws IOException if the stream fails
+     */
+    public static <K extends Comparable<K>, V> void write(TreeMap<K, V> map, Codec<K> keyCodec, Codec<V> valueCodec,
+            OutputStream out) throws IOException {
+        write(map, keyCodec, valueCodec, streamSink(out));
+        out.flush();
+    }
+
+    /**
+     * Writes the entries of a map to a channel.
+     *
+     * @param <K> the type of keys of the map
+     * @param <V> the type of values of the map
+     * @param map the map to export
+     * @param keyCodec the codec of the keys
+     * @param valueCodec the codec of the values
+     * @param out the channel to write to
+     * @throws IOException if the channel fails
+     */
+    public static <K extends Comparable<K>, V> void write(TreeMap<K, V> map, Codec<K> keyCodec, Codec<V> valueCodec,
+            WritableByteChannel out) throws IOException {
+        write(map, keyCodec, valueCodec, channelSink(out));
+    }
+
+    /**
+     * Writes the values of a BST to an OutputStream.
+     *
+     * @param <E> the type of values of the tree
+     * @param tree the tree to export
+     * @param codec the codec of the values
+     * @param out the stream to write to
+     * @throws IOException if the stream fails
+     */
+    public static <E extends Comparable<E>> void write(BST<E> tree, Codec<E> codec, OutputStream out)
+            throws IOException {
+        write(tree, codec, streamSink(out));
+        out.flush();
+    }
+
+    /**
+     * Writes the values of a BST to a channel.
+     *
+     * @param <E> the type of values of the tree
+     * @param tree the tree to export
+     * @param codec the codec of the values
+     * @param out the channel to write to
+     * @throws IOException if the channel fails
+     */
+    public static <E extends Comparable<E>> void write(BST<E> tree, Codec<E> codec, WritableByteChannel out)
+            throws IOException {
+        write(tree, codec, channelSink(out));
+    }
+
+    /**
+     * Replaces the contents of a map with the entries read from an InputStream.
+     *
+     * @param <K> the type of keys of the map
+     * @param <V> the type of values of the map
+     * @param map the map to import into
+     * @param keyCodec the codec of the keys
+     * @param valueCodec the codec of the values
+     * @param in the stream to read from
+     * @throws IOException if the stream fails or its contents are malformed or not
+     *         sorted
+     */
+    public static <K extends Comparable<K>, V> void read(TreeMap<K, V> map, Codec<K> keyCodec, Codec<V> valueCodec,
+            InputStream in) throws IOException {
+        read(map, keyCodec, valueCodec, new BinaryReader(streamSource(in)));
+    }
+
+    /**
+     * Replaces the contents of a map with the entries read from a channel.
+     *
+     * @param <K> the type of keys of the map
+     * @param <V> the type of values of the map
+     * @param map the map to import into
+     * @param keyCodec the codec of the keys
+     * @param valueCodec the codec of the values
+     * @param in the channel to read from
+     * @throws IOException if the channel fails or its contents are malformed or not
+     *         sorted
+     */
+    public static <K extends Comparable<K>, V> void read(TreeMap<K, V> map, Codec<K> keyCodec, Codec<V> valueCodec,
+            ReadableByteChannel in) throws IOException {
+        read(map, keyCodec, valueCodec, new BinaryReader(in::read));
+    }
+
+    /**
+     * Replaces the contents of a BST with the values read from an InputStream.
+     *
+     * @param <E> the type of values of the tree
+     * @param tree the tree to import into
+     * @param codec the codec of the values
+     * @param in the stream to read from
+     * @throws IOException if the stream fails or its contents are malformed or not
+     *         sorted
+     */
+    public static <E extends Comparable<E>> void read(BST<E> tree, Codec<E> codec, InputStream in)
+            throws IOException {
+        read(tree, codec, new BinaryReader(streamSource(in)));
+    }
+
+    /**
+     * Replaces the contents of a BST with the values read from a channel.
+     *
+     * @param <E> the type of values of the tree
+     * @param tree the tree to import into
+     * @param codec the codec of the values
+     * @param in the channel to read from
+     * @throws IOException if the channel fails or its contents are malformed or not
+     *         sorted
+     */
+    public static <E extends Comparable<E>> void read(BST<E> tree, Codec<E> codec, ReadableByteChannel in)
+            throws IOException {
+        read(tree, codec, new BinaryReader(in::read));
+    }
+
+    /**
+     * Writes the entries of a map to a sink.
+     *
+     * @param <K> the type of keys of the map
+     * @param <V> the type of values of the map
+     * @param map the map to export
+     * @param keyCodec the codec of the keys
+     * @param valueCodec the codec of the values
+     * @param sink the sink to write to
+     * @throws IOException if the sink fails
+     */
+    private static <K extends Comparable<K>, V> void write(TreeMap<K, V> map, Codec<K> keyCodec,
+            Codec<V> valueCodec, Sink sink) throws IOException {
+        BinaryWriter out = new BinaryWriter(sink);
+        out.writeInt(MAP_MAGIC);
+        out.writeInt(map.size());
+        for (MapEntry<K, V> entry : map) {
+            out.writeField(entry.getKey(), keyCodec);
+            out.writeField(entry.getValue(), valueCodec);
+        }
+        out.drain();
+    }
+
+    /**
+     * Writes the values of a BST to a sink.
+     *
+     * @param <E> the type of values of the tree
+     * @param tree the tree to export
+     * @param codec the codec of the values
+     * @param sink the sink to write to
+     * @throws IOException if the sink fails
+     */
+    private static <E extends Comparable<E>> void write(BST<E> tree, Codec<E> codec, Sink sink) throws IOException {
+        BinaryWriter out = new BinaryWriter(sink);
+        out.writeInt(BST_MAGIC);
+        out.writeInt(tree.size());
+        for (E value : tree)
+            out.writeField(value, codec);
+        out.drain();
+    }
+
+    /**
+     * Replaces the contents of a map with the entries read by a BinaryReader.
+     *
+     * @param <K> the type of keys of the map
+     * @param <V> the type of values of the map
+     * @param map the map to import into
+     * @param keyCodec the codec of the keys
+     * @param valueCodec the codec of the values
+     * @param in the reader to read from
+     * @throws IOException if the source fails or its contents are malformed or not
+     *         sorted
+     */
+    private static <K extends Comparable<K>, V> void read(TreeMap<K, V> map, Codec<K> keyCodec, Codec<V> valueCodec,
+            BinaryReader in) throws IOException {
+        int count = in.readHeader(MAP_MAGIC);
+        Iterator<MapEntry<K, V>> entries = new RecordIterator<MapEntry<K, V>>(in, count) {
+            @Override
+            MapEntry<K, V> read() throws IOException {
+                K key = in.readField(keyCodec);
+                if (key == null)
+                    throw new IOException("Missing key");
+                return new MapEntry<>(key, in.readField(valueCodec));
+            }
+        };
+        try {
+            map.loadSorted(entries, count);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Replaces the contents of a BST with the values read by a BinaryReader.
+     *
+     * @param <E> the type of values of the tree
+     * @param tree the tree to import into
+     * @param codec the codec of the values
+     * @param in the reader to read from
+     * @throws IOException if the source fails or its contents are malformed or not
+     *         sorted
+     */
+    private static <E extends Comparable<E>> void read(BST<E> tree, Codec<E> codec, BinaryReader in)
+            throws IOException {
+        int count = in.readHeader(BST_MAGIC);
+        Iterator<E> values = new RecordIterator<E>(in, count) {
+            @Override
+            E read() throws IOException {
+                E value = in.readField(codec);
+                if (value == null)
+                    throw new IOException("Missing value");
+                return value;
+            }
+        };
+        try {
+            tree.loadSorted(values, count);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns a sink writing to an OutputStream straight from the buffer's array.
+     *
+     * @param out the stream to write to
+     * @return the sink
+     */
+    private static Sink streamSink(OutputStream out) {
+        return buffer -> {
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+        };
+    }
+
+    /**
+     * Returns a sink writing to a channel.
+     *
+     * @param out the channel to write to
+     * @return the sink
+     */
+    private static Sink channelSink(WritableByteChannel out) {
+        return buffer -> {
+            while (buffer.hasRemaining())
+                out.write(buffer);
+        };
+    }
+
+    /**
+     * Returns a source reading from an InputStream straight into the buffer's
+     * array.
+     *
+     * @param in the stream to read from
+     * @return the source
+     */
+    private static Source streamSource(InputStream in) {
+        return buffer -> {
+            int n = in.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            if (n > 0)
+                buffer.position(buffer.position() + n);
+            return n;
+        };
+    }
+
+    /**
+     * Destination of the bytes written by a BinaryWriter.
+     */
+    private interface Sink {
+        /**
+         * Writes all the remaining bytes of a buffer.
+         *
+         * @param buffer the buffer, flipped for reading
+         * @throws IOException if the destination fails
+         */
+        void write(ByteBuffer buffer) throws IOException;
+    }
+
+    /**
+     * Origin of the bytes read by a BinaryReader.
+     */
+    private interface Source {
+        /**
+         * Reads bytes into the remaining space of a buffer.
+         *
+         * @param buffer the buffer, ready for writing
+         * @return the number of bytes read, or -1 at the end of the input
+         * @throws IOException if the origin fails
+         */
+        int read(ByteBuffer buffer) throws IOException;
+    }
+
+    /**
+     * Writes ints and length-prefixed fields through a large reusable buffer.
+     */
+    private static class BinaryWriter {
+        private final Sink sink;
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        /**
+         * Constructs a BinaryWriter writing to the given sink.
+         *
+         * @param sink the sink to write to
+         */
+        BinaryWriter(Sink sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * Writes an int.
+         *
+         * @param value the int to write
+         * @throws IOException if the sink fails
+         */
+        void writeInt(int value) throws IOException {
+            if (buffer.remaining() < 4)
+                drain();
+            buffer.putInt(value);
+        }
+
+        /**
+         * Writes a field as its byte length followed by its bytes. The codec writes
+         * straight into the buffer and the length is filled in afterwards.
+         *
+         * @param <T> the type of the value
+         * @param value the value of the field, or null
+         * @param codec the codec of the value
+         * @throws IOException if the sink fails
+         */
+        <T> void writeField(T value, Codec<T> codec) throws IOException {
+            if (value == null) {
+                writeInt(-1);
+                return;
+            }
+            while (true) {
+                if (buffer.remaining() < 4)
+                    drain();
+                int start = buffer.position();
+                try {
+                    buffer.position(start + 4);
+                    codec.encode(value, buffer);
+                    buffer.putInt(start, buffer.position() - start - 4);
+                    return;
+                } catch (BufferOverflowException e) {
+                    buffer.position(start);
+                    if (start > 0)
+                        drain(); // retry with an empty buffer
+                    else
+                        buffer = ByteBuffer.allocate(buffer.capacity() * 2); // the value alone is too big
+                }
+            }
+        }
+
+        /**
+         * Writes out the buffered bytes.
+         *
+         * @throws IOException if the sink fails
+         */
+        void drain() throws IOException {
+            buffer.flip();
+            sink.write(buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Reads ints and length-prefixed fields through a large reusable buffer.
+     */
+    private static class BinaryReader {
+        private final Source source;
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).limit(0);
+
+        /**
+         * Constructs a BinaryReader reading from the given source.
+         *
+         * @param source the source to read from
+         */
+        BinaryReader(Source source) {
+            this.source = source;
+        }
+
+        /**
+         * Reads and checks the magic number and record count.
+         *
+         * @param magic the expected magic number
+         * @return the number of records
+         * @throws IOException if the source fails or the header is invalid
+         */
+        int readHeader(int magic) throws IOException {
+            if (readInt() != magic)
+                throw new IOException("Not a " + (magic == MAP_MAGIC ? "TreeMap" : "BST") + " stream");
+            int count = readInt();
+            if (count < 0)
+                throw new IOException("Invalid record count " + count);
+            return count;
+        }
+
+        /**
+         * Reads an int.
+         *
+         * @return the int read
+         * @throws IOException if the source fails or ends early
+         */
+        int readInt() throws IOException {
+            require(4);
+            return buffer.getInt();
+        }
+
+        /**
+         * Reads a field written by BinaryWriter.writeField.
+         *
+         * @param <T> the type of the value
+         * @param codec the codec of the value
+         * @return the value, or null
+         * @throws IOException if the source fails or the field is malformed
+         */
+        <T> T readField(Codec<T> codec) throws IOException {
+            int length = readInt();
+            if (length == -1)
+                return null;
+            if (length < 0)
+                throw new IOException("Invalid field length " + length);
+            require(length);
+            int end = buffer.position() + length;
+            try {
+                return codec.decode(buffer, length);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid field: " + e.getMessage(), e);
+            } finally {
+                buffer.position(end);
+            }
+        }
+
+        /**
+         * Makes sure the input holds nothing after the last record, so that a wrong
+         * record count is reported instead of silently dropping data.
+         *
+         * @throws IOException if the source fails or has bytes left
+         */
+        void requireEnd() throws IOException {
+            int n = 0;
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                do {
+                    n = source.read(buffer);
+                } while (n == 0);
+                buffer.flip();
+            }
+            if (n >= 0)
+                throw new IOException("Unexpected data after the last record");
+        }
+
+        /**
+         * Makes sure at least n bytes are available in the buffer, reading more from
+         * the source as needed. The buffer only grows when it is full of bytes that
+         * actually arrived, doubling each time, so a corrupt length cannot make it
+         * allocate much more than the input holds.
+         *
+         * @param n the number of bytes needed
+         * @throws IOException if the source fails or ends early, or n is larger than
+         *         any buffer can hold
+         */
+        private void require(int n) throws IOException {
+            if (buffer.remaining() >= n)
+                return;
+            if (n > MAX_FIELD_SIZE)
+                throw new IOException("Field of " + n + " bytes is too large");
+            buffer.compact();
+            while (buffer.position() < n) {
+                if (!buffer.hasRemaining()) {
+                    ByteBuffer grown = ByteBuffer.allocate((int) Math.min(n, 2L * buffer.capacity()));
+                    buffer.flip();
+                    grown.put(buffer);
+                    buffer = grown;
+                }
+                if (source.read(buffer) < 0)
+                    throw new EOFException("Unexpected end of binary stream");
+            }
+            buffer.flip();
+        }
+    }
+
+    /**
+     * Iterator over the records of a stream, used to feed loadSorted. Read errors
+     * are rethrown as UncheckedIOException since Iterator.next cannot throw
+     * IOException.
+     *
+     * @param <T> the type of the records
+     */
+    private abstract static class RecordIterator<T> implements Iterator<T> {
+        private final BinaryReader in;
+        private int remaining;
+
+        /**
+         * Constructs an iterator over the given number of records.
+         *
+         * @param in the reader the records are read from
+         * @param count the number of records
+         * @throws IOException if count is 0 and the source has bytes left
+         */
+        RecordIterator(BinaryReader in, int count) throws IOException {
+            this.in = in;
+            this.remaining = count;
+            if (count == 0)
+                in.requireEnd();
+        }
+
+        /**
+         * Reads the next record.
+         *
+         * @return the record
+         * @throws IOException if the source fails or the record is malformed
+         */
+        abstract T read() throws IOException;
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public T next() {
+            remaining--;
+            try {
+                T record = read();
+                if (remaining == 0)
+                    in.requireEnd(); // before loadSorted replaces the tree
+                return record;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
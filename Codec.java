@@ -0,0 +1,136 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts values to and from the text used by CsvFormat and the bytes used by
+ * BinaryFormat. Codecs never see null values; the formats encode null
+ * themselves.
+ *
+ * @param <T> the type of values converted by this codec
+ * @author Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since 2024-6-24 (date of last revision)
+ */
+public interface Codec<T> {
+    /**
+     * Appends the text form of a value. CsvFormat adds any quoting needed.
+     *
+     * @param value the value to format
+     * @param out the builder the text is appended to
+     */
+    void format(T value, StringBuilder out);
+
+    /**
+     * Parses the text form of a value.
+     *
+     * @param text the text to parse, without CSV quoting
+     * @return the value
+     * @throws IllegalArgumentException if the text is not a valid value
+     */
+    T parse(CharSequence text);
+
+    /**
+     * Writes the binary form of a value at the position of a buffer.
+     *
+     * @param value the value to encode
+     * @param buffer the buffer to write to
+     * @throws java.nio.BufferOverflowException if the buffer is too small; the
+     *         caller then retries with more room
+     */
+    void encode(T value, ByteBuffer buffer);
+
+    /**
+     * Reads the binary form of a value from the position of a buffer, leaving the
+     * position just after its length bytes.
+     *
+     * @param buffer the buffer to read from
+     * @param length the number of bytes of the value
+     * @return the value
+     * @throws IllegalArgumentException if the bytes are not a valid value
+     */
+    T decode(ByteBuffer buffer, int length);
+
+    /**
+     * Codec for String values, encoded as UTF-8.
+     */
+    Codec<String> STRING = new Codec<String>() {
+        @Override
+        public void format(String value, StringBuilder out) {
+            out.append(value);
+        }
+
+        @Override
+        public String parse(CharSequence text) {
+            return text.toString();
+        }
+
+        @Override
+        public void encode(String value, ByteBuffer buffer) {
+            // Encode in place rather than through getBytes to avoid a temporary array
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    buffer.put((byte) c);
+                } else if (c < 0x800) {
+                    buffer.put((byte) (0xC0 | (c >> 6)));
+                    buffer.put((byte) (0x80 | (c & 0x3F)));
+                } else if (Character.isSurrogate(c)) {
+                    int cp = value.codePointAt(i);
+                    if (cp == c) {
+                        buffer.put((byte) '?'); // unpaired surrogate, as String.getBytes does
+                    } else {
+                        buffer.put((byte) (0xF0 | (cp >> 18)));
+                        buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                        buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                        buffer.put((byte) (0x80 | (cp & 0x3F)));
+                        i++;
+                    }
+                } else {
+                    buffer.put((byte) (0xE0 | (c >> 12)));
+                    buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                    buffer.put((byte) (0x80 | (c & 0x3F)));
+                }
+            }
+        }
+
+        @Override
+        public String decode(ByteBuffer buffer, int length) {
+            if (buffer.hasArray()) {
+                String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                        StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+                return value;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    /**
+     * Codec for Integer values, encoded as 4 big-endian bytes.
+     */
+    Codec<Integer> INTEGER = new Codec<Integer>() {
+        @Override
+        public void format(Integer value, StringBuilder out) {
+            out.append(value.intValue());
+        }
+
+        @Override
+        public Integer parse(CharSequence text) {
+            return Integer.parseInt(text, 0, text.length(), 10);
+        }
+
+        @Override
+        public void encode(Integer value, ByteBuffer buffer) {
+            buffer.putInt(value);
+        }
+
+        @Override
+        public Integer decode(ByteBuffer buffer, int length) {
+            if (length != 4)
+                throw new IllegalArgumentException("An Integer takes 4 bytes, not " + length);
+            return buffer.getInt();
+        }
+    };
+}
@@ -0,0 +1,476 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Streaming export and import of TreeMap and BST contents as CSV (RFC 4180).
+ * A map is written as one key,value line per entry and a BST as one value per
+ * line, both in ascending order. Fields containing a comma, a quote or a line
+ * break are quoted, an empty String is written as "" and null is written as an
+ * empty unquoted field. Byte streams and channels use UTF-8.
+ *
+ * Lines are gathered in a large buffer and handed to the Writer in big chunks
+ * rather than one write per entry. The streams passed in are flushed but not
+ * closed.
+ *
+ * Importing replaces the contents of the tree, which is built balanced from
+ * the sorted lines. The lines are collected first because CSV does not record
+ * how many there are; use BinaryFormat to build the tree straight from the
+ * stream.
+ *
+ * @author Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since 2024-6-24 (date of last revision)
+ */
+public class CsvFormat {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Utility class, not meant to be instantiated.
+     */
+    private CsvFormat() {
+    }
+
+    /**
+     * Writes the entries of a map to a Writer.
+     *
+     * @param <K> the type of keys of the map
+     * @param <V> the type of values of the map
+     * @param map the map to export
+     * @param keyCodec the codec of the keys
+     * @param valueCodec the codec of the values
+     * @param out the Writer to write to
+     * @throws IOException if the Writer fails
+     */
+    public static <K extends Comparable<K>, V> void write(TreeMap<K, V> map, Codec<K> keyCodec, Codec<V> valueCodec,
+            Writer out) throws IOException {
+        CsvWriter csv = new CsvWriter(out);
+        for (MapEntry<K, V> entry : map) {
+            csv.writeField(entry.getKey(), keyCodec);
+            csv.separator();
+            csv.writeField(entry.getValue(), valueCodec);
+            csv.endRecord();
+        }
+        csv.flush();
+    }
+
+    /**
+     * Writes the entries of a map to an OutputStream, encoded as UTF-8.
+     *
+     * @param <K> the type of keys of the map
+     * @param <V> the type of values of the map
+     * @param map the map to export
+     * @param keyCodec the codec of the keys
+     * @param valueCodec the codec of the values
+     * @param out the stream to write to
+     * @throws IOException if the stream fails
+     */
+    public static <K extends Comparable<K>, V> void write(TreeMap<K, V> map, Codec<K> keyCodec, Codec<V> valueCodec,
+            OutputStream out) throws IOException {
+        write(map, keyCodec, valueCodec, new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the entries of a map to a channel, encoded as UTF-8.
+     *
+     * @param <K> the type of keys of the map
+     * @param <V> the type of values of the map
+     * @param map the map to export
+     * @param keyCodec the codec of the keys
+     * @param valueCodec the codec of the values
+     * @param out the channel to write to
+     * @throws IOException if the channel fails
+     */
+    public static <K extends Comparable<K>, V> void write(TreeMap<K, V> map, Codec<K> keyCodec, Codec<V> valueCodec,
+            WritableByteChannel out) throws IOException {
+        write(map, keyCodec, valueCodec, Channels.newWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the values of a BST to a Writer.
+     *
+     * @param <E> the type of values of the tree
+     * @param tree the tree to export
+     * @param codec the codec of the values
+     * @param out the Writer to write to
+     * @throws IOException if the Writer fails
+     */
+    public static <E extends Comparable<E>> void write(BST<E> tree, Codec<E> codec, Writer out) throws IOException {
+        CsvWriter csv = new CsvWriter(out);
+        for (E value : tree) {
+            csv.writeField(value, codec);
+            csv.endRecord();
+        }
+        csv.flush();
+    }
+
+    /**
+     * Writes the values of a BST to an OutputStream, encoded as UTF-8.
+     *
+     * @param <E> the type of values of the tree
+     * @param tree the tree to export
+     * @param codec the codec of the values
+     * @param out the stream to write to
+     * @throws IOException if the stream fails
+     */
+    public static <E extends Comparable<E>> void write(BST<E> tree, Codec<E> codec, OutputStream out)
+            throws IOException {
+        write(tree, codec, new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the values of a BST to a channel, encoded as UTF-8.
+     *
+     * @param <E> the type of values of the tree
+     * @param tree the tree to export
+     * @param codec the codec of the values
+     * @param out the channel to write to
+     * @throws IOException if the channel fails
+     */
+    public static <E extends Comparable<E>> void write(BST<E> tree, Codec<E> codec, WritableByteChannel out)
+            throws IOException {
+        write(tree, codec, Channels.newWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Replaces the contents of a map with the entries read from a Reader.
+     *
+     * @param <K> the type of keys of the map
+     * @param <V> the type of values of the map
+     * @param map the map to import into
+     * @param keyCodec the codec of the keys
+     * @param valueCodec the codec of the values
+     * @param in the Reader to read from
+     * @throws IOException if the Reader fails or the CSV is malformed or not sorted
+     */
+    public static <K extends Comparable<K>, V> void read(TreeMap<K, V> map, Codec<K> keyCodec, Codec<V> valueCodec,
+            Reader in) throws IOException {
+        CsvReader csv = new CsvReader(in);
+        ArrayList<MapEntry<K, V>> entries = new ArrayList<>();
+        while (!csv.atEnd()) {
+            if (csv.readField() != ',')
+                throw csv.error("expected 2 fields");
+            K key = csv.parseField(keyCodec);
+            if (key == null)
+                throw csv.error("missing key");
+            if (csv.readField() == ',')
+                throw csv.error("expected 2 fields");
+            entries.add(new MapEntry<>(key, csv.parseField(valueCodec)));
+        }
+        try {
+            map.loadSorted(entries.iterator(), entries.size());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Replaces the contents of a map with the entries read from an InputStream
+     * encoded as UTF-8.
+     *
+     * @param <K> the type of keys of the map
+     * @param <V> the type of values of the map
+     * @param map the map to import into
+     * @param keyCodec the codec of the keys
+     * @param valueCodec the codec of the values
+     * @param in the stream to read from
+     * @throws IOException if the stream fails or the CSV is malformed or not sorted
+     */
+    public static <K extends Comparable<K>, V> void read(TreeMap<K, V> map, Codec<K> keyCodec, Codec<V> valueCodec,
+            InputStream in) throws IOException {
+        read(map, keyCodec, valueCodec, new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Replaces the contents of a map with the entries read from a channel encoded
+     * as UTF-8.
+     *
+     * @param <K> the type of keys of the map
+     * @param <V> the type of values of the map
+     * @param map the map to import into
+     * @param keyCodec the codec of the keys
+     * @param valueCodec the codec of the values
+     * @param in the channel to read from
+     * @throws IOException if the channel fails or the CSV is malformed or not sorted
+     */
+    public static <K extends Comparable<K>, V> void read(TreeMap<K, V> map, Codec<K> keyCodec, Codec<V> valueCodec,
+            ReadableByteChannel in) throws IOException {
+        read(map, keyCodec, valueCodec, Channels.newReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Replaces the contents of a BST with the values read from a Reader.
+     *
+     * @param <E> the type of values of the tree
+     * @param tree the tree to import into
+     * @param codec the codec of the values
+     * @param in the Reader to read from
+     * @throws IOException if the Reader fails or the CSV is malformed or not sorted
+     */
+    public static <E extends Comparable<E>> void read(BST<E> tree, Codec<E> codec, Reader in) throws IOException {
+        CsvReader csv = new CsvReader(in);
+        ArrayList<E> values = new ArrayList<>();
+        while (!csv.atEnd()) {
+            if (csv.readField() == ',')
+                throw csv.error("expected 1 field");
+            E value = csv.parseField(codec);
+            if (value == null)
+                throw csv.error("missing value");
+            values.add(value);
+        }
+        try {
+            tree.loadSorted(values.iterator(), values.size());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Replaces the contents of a BST with the values read from an InputStream
+     * encoded as UTF-8.
+     *
+     * @param <E> the type of values of the tree
+     * @param tree the tree to import into
+     * @param codec the codec of the values
+     * @param in the stream to read from
+     * @throws IOException if the stream fails or the CSV is malformed or not sorted
+     */
+    public static <E extends Comparable<E>> void read(BST<E> tree, Codec<E> codec, InputStream in)
+            throws IOException {
+        read(tree, codec, new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Replaces the contents of a BST with the values read from a channel encoded
+     * as UTF-8.
+     *
+     * @param <E> the type of values of the tree
+     * @param tree the tree to import into
+     * @param codec the codec of the values
+     * @param in the channel to read from
+     * @throws IOException if the channel fails or the CSV is malformed or not sorted
+     */
+    public static <E extends Comparable<E>> void read(BST<E> tree, Codec<E> codec, ReadableByteChannel in)
+            throws IOException {
+        read(tree, codec, Channels.newReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Buffers CSV text and writes it to a Writer in large chunks.
+     */
+    private static class CsvWriter {
+        private final Writer out;
+        private final StringBuilder buffer = new StringBuilder(BUFFER_SIZE + 1024);
+        private final StringBuilder field = new StringBuilder();
+        private char[] chunk = new char[BUFFER_SIZE + 1024];
+
+        /**
+         * Constructs a CsvWriter writing to the given Writer.
+         *
+         * @param out the Writer to write to
+         */
+        CsvWriter(Writer out) {
+            this.out = out;
+        }
+
+        /**
+         * Appends a field, quoting it if needed.
+         *
+         * @param <T> the type of the value
+         * @param value the value of the field, or null
+         * @param codec the codec of the value
+         */
+        <T> void writeField(T value, Codec<T> codec) {
+            if (value == null)
+                return;
+            field.setLength(0);
+            codec.format(value, field);
+            boolean quote = field.length() == 0;
+            for (int i = 0; i < field.length() && !quote; i++) {
+                char c = field.charAt(i);
+                quote = (c == ',' || c == '"' || c == '\n' || c == '\r');
+            }
+            if (!quote) {
+                buffer.append(field);
+                return;
+            }
+            buffer.append('"');
+            for (int i = 0; i < field.length(); i++) {
+                char c = field.charAt(i);
+                if (c == '"')
+                    buffer.append('"');
+                buffer.append(c);
+            }
+            buffer.append('"');
+        }
+
+        /**
+         * Appends a field separator.
+         */
+        void separator() {
+            buffer.append(',');
+        }
+
+        /**
+         * Ends the current line, writing the buffer out once it is full.
+         *
+         * @throws IOException if the Writer fails
+         */
+        void endRecord() throws IOException {
+            buffer.append('\n');
+            if (buffer.length() >= BUFFER_SIZE)
+                drain();
+        }
+
+        /**
+         * Writes out the buffer and flushes the Writer.
+         *
+         * @throws IOException if the Writer fails
+         */
+        void flush() throws IOException {
+            drain();
+            out.flush();
+        }
+
+        /**
+         * Writes out the buffer.
+         *
+         * @throws IOException if the Writer fails
+         */
+        private void drain() throws IOException {
+            int length = buffer.length();
+            if (chunk.length < length)
+                chunk = new char[length];
+            buffer.getChars(0, length, chunk, 0);
+            out.write(chunk, 0, length);
+            buffer.setLength(0);
+        }
+    }
+
+    /**
+     * Reads CSV fields from a Reader through a large buffer.
+     */
+    private static class CsvReader {
+        private final Reader in;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private final StringBuilder field = new StringBuilder();
+        private int position;
+        private int limit;
+        private boolean quoted;
+        private int record;
+
+        /**
+         * Constructs a CsvReader reading from the given Reader.
+         *
+         * @param in the Reader to read from
+         */
+        CsvReader(Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * Returns true if there is no line left to read, otherwise moves on to the
+         * next record.
+         *
+         * @return true if the input is exhausted
+         * @throws IOException if the Reader fails
+         */
+        boolean atEnd() throws IOException {
+            if (next() < 0)
+                return true;
+            position--; // the character is still in the buffer
+            record++;
+            return false;
+        }
+
+        /**
+         * Reads the next field into the field buffer.
+         *
+         * @return ',' if more fields follow on the line, '\n' or -1 if the line ends
+         * @throws IOException if the Reader fails or the field is malformed
+         */
+        int readField() throws IOException {
+            field.setLength(0);
+            int c = next();
+            quoted = (c == '"');
+            if (quoted) {
+                while (true) {
+                    c = next();
+                    if (c < 0)
+                        throw error("unterminated quoted field");
+                    if (c == '"') {
+                        c = next();
+                        if (c != '"')
+                            break;
+                    }
+                    field.append((char) c);
+                }
+            } else {
+                while (c >= 0 && c != ',' && c != '\n' && c != '\r') {
+                    field.append((char) c);
+                    c = next();
+                }
+            }
+            if (c == '\r')
+                c = next();
+            if (c >= 0 && c != ',' && c != '\n')
+                throw error("unexpected character after field");
+            return c;
+        }
+
+        /**
+         * Parses the field just read.
+         *
+         * @param <T> the type of the value
+         * @param codec the codec of the value
+         * @return the value, or null for an empty unquoted field
+         * @throws IOException if the codec rejects the field
+         */
+        <T> T parseField(Codec<T> codec) throws IOException {
+            if (!quoted && field.length() == 0)
+                return null;
+            try {
+                return codec.parse(field);
+            } catch (IllegalArgumentException e) {
+                throw error("invalid field \"" + field + "\"");
+            }
+        }
+
+        /**
+         * Builds an exception for malformed input in the current record.
+         *
+         * @param message the description of the problem
+         * @return the exception
+         */
+        IOException error(String message) {
+            return new IOException("CSV record " + record + ": " + message);
+        }
+
+        /**
+         * Returns the next character, refilling the buffer when it is empty.
+         *
+         * @return the next character, or -1 at the end of the input
+         * @throws IOException if the Reader fails
+         */
+        private int next() throws IOException {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+    }
+}
@@ -0,0 +1,520 @@
+import java.util.ArrayList;
+
+/**
+ * A String-keyed ordered map implemented as a compressed trie (radix tree).
+ * Keys that share a common prefix share the nodes that spell it. A lookup
+ * walks down one node per edge of the key's path: at each node the child is
+ * found by binary search on the first characters of the siblings' labels, then
+ * only the rest of that child's label is compared. The cost therefore depends
+ * on the key length and the fan-out, not on the number of keys, and the full
+ * key is never compared again as in the binary search tree of TreeMap. Keys are
+ * ordered by the natural ordering of String, the same ordering used by a
+ * TreeMap created without a comparator.
+ *
+ * Keys are not stored whole; the entries returned by first, last, ceiling,
+ * floor and prefixScan are rebuilt from the path to their node, which builds a
+ * new key String on every call. They are snapshots, and calling setValue on
+ * them does not modify the map.
+ *
+ * @param <V> the type of mapped values
+ * @author Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since 2024-6-24 (date of last revision)
+ */
+public class StringTreeMap<V> {
+    private Node root;
+    private int size;
+
+    /**
+     * Inner class representing a node in the radix tree. The key of a node is
+     * the concatenation of the labels on the path from the root to the node.
+     * Children are kept in an array sorted by the first character of their
+     * label, which is distinct among siblings.
+     */
+    private class Node {
+        String label;
+        V value;
+        boolean hasValue;
+        Node[] children;
+        int childCount;
+
+        /**
+         * Constructs a Node with the given edge label and no value.
+         *
+         * @param label the characters on the edge leading to this node
+         */
+        Node(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * Constructs an empty StringTreeMap.
+     */
+    public StringTreeMap() {
+        this.root = new Node("");
+        this.size = 0;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if this map contains no key-value mappings.
+     *
+     * @return true if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return (size == 0);
+    }
+
+    /**
+     * Removes all of the mappings from this map. The map will be empty after this
+     * call returns.
+     */
+    public void clear() {
+        root = new Node("");
+        size = 0;
+    }
+
+    /**
+     * Returns true if this map contains a mapping for the specified key.
+     *
+     * @param key the key whose presence in this map is to be tested
+     * @return true if this map contains a mapping for the specified key
+     */
+    public boolean contains(String key) {
+        Node node = root;
+        int pos = 0;
+        while (pos < key.length()) {
+            int i = indexOf(node, key.charAt(pos));
+            if (i < 0)
+                return false;
+            node = node.children[i];
+            if (!key.startsWith(node.label, pos))
+                return false;
+            pos += node.label.length();
+        }
+        return node.hasValue;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map. If the map
+     * previously contained a mapping for the key, the old value is replaced.
+     *
+     * @param key the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return true if the key was not already present in the map
+     */
+    public boolean add(String key, V value) {
+        Node node = root;
+        int pos = 0;
+        while (pos < key.length()) {
+            int i = indexOf(node, key.charAt(pos));
+            if (i < 0) {
+                Node leaf = new Node(key.substring(pos));
+                leaf.value = value;
+                leaf.hasValue = true;
+                insertChild(node, -i - 1, leaf);
+                size++;
+                return true;
+            }
+            Node child = node.children[i];
+            int m = commonPrefix(child.label, key, pos);
+            if (m < child.label.length()) {
+                // Split the edge so the shared part of the label gets its own node
+                Node split = new Node(child.label.substring(0, m));
+                child.label = child.label.substring(m);
+                insertChild(split, 0, child);
+                node.children[i] = split;
+                child = split;
+            }
+            node = child;
+            pos += m;
+        }
+        node.value = value; // Update value if key already exists
+        if (node.hasValue)
+            return false;
+        node.hasValue = true;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present.
+     *
+     * @param key the key whose mapping is to be removed from the map
+     * @return true if the key was found and removed, false if the key was not found
+     */
+    public boolean remove(String key) {
+        Node parent = null;
+        Node node = root;
+        int index = -1;
+        int pos = 0;
+        while (pos < key.length()) {
+            int i = indexOf(node, key.charAt(pos));
+            if (i < 0 || !key.startsWith(node.children[i].label, pos))
+                return false;
+            parent = node;
+            index = i;
+            node = node.children[i];
+            pos += node.label.length();
+        }
+        if (!node.hasValue)
+            return false;
+        node.value = null;
+        node.hasValue = false;
+        size--;
+        if (parent == null)
+            return true;
+        // Keep the tree compressed: no node other than the root may be valueless
+        // with fewer than two children
+        if (node.childCount == 0) {
+            removeChild(parent, index);
+            if (parent != root && !parent.hasValue && parent.childCount == 1)
+                mergeWithChild(parent);
+        } else if (node.childCount == 1) {
+            mergeWithChild(node);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the first (lowest) key currently in this map.
+     *
+     * @return the first (lowest) key currently in this map, or null if the map is
+     *         empty
+     */
+    public MapEntry<String, V> first() {
+        if (size == 0)
+            return null;
+        return min(root, new StringBuilder());
+    }
+
+    /**
+     * Returns the last (highest) key currently in this map.
+     *
+     * @return the last (highest) key currently in this map, or null if the map is
+     *         empty
+     */
+    public MapEntry<String, V> last() {
+        if (size == 0)
+            return null;
+        return max(root, new StringBuilder());
+    }
+
+    /**
+     * Returns the least key greater than or equal to the given key, or null if there
+     * is no such key.
+     *
+     * @param key the key
+     * @return the least key greater than or equal to the given key, or null if there
+     *         is no such key
+     */
+    public MapEntry<String, V> ceiling(String key) {
+        if (size == 0)
+            return null;
+        return ceiling(root, key, 0, new StringBuilder());
+    }
+
+    /**
+     * Returns the greatest key less than or equal to the given key, or null if there
+     * is no such key.
+     *
+     * @param key the key
+     * @return the greatest key less than or equal to the given key, or null if there
+     *         is no such key
+     */
+    public MapEntry<String, V> floor(String key) {
+        if (size == 0)
+            return null;
+        return floor(root, key, 0, new StringBuilder());
+    }
+
+    /**
+     * Returns all the entries whose key starts with the given prefix, in ascending
+     * key order.
+     *
+     * @param prefix the prefix to search for
+     * @return the list of entries whose key starts with the given prefix, empty if
+     *         there are none
+     */
+    public ArrayList<MapEntry<String, V>> prefixScan(String prefix) {
+        ArrayList<MapEntry<String, V>> result = new ArrayList<>();
+        Node node = root;
+        StringBuilder path = new StringBuilder();
+        int pos = 0;
+        while (pos < prefix.length()) {
+            int i = indexOf(node, prefix.charAt(pos));
+            if (i < 0)
+                return result;
+            node = node.children[i];
+            int m = commonPrefix(node.label, prefix, pos);
+            if (m < node.label.length() && pos + m < prefix.length())
+                return result; // the prefix diverges from the label
+            path.append(node.label);
+            pos += m;
+        }
+        collect(node, path, result);
+        return result;
+    }
+
+    /**
+     * Performs an inorder traversal of the tree, printing each entry.
+     */
+    public void inorder() {
+        inorder(root, new StringBuilder());
+        System.out.println();
+    }
+
+    /**
+     * Helper method to perform an inorder traversal starting from a given node.
+     * A node's key precedes the keys of all its children.
+     *
+     * @param node the node to start the traversal from
+     * @param path the key of the node
+     */
+    private void inorder(Node node, StringBuilder path) {
+        if (node.hasValue)
+            System.out.print(new MapEntry<>(path.toString(), node.value) + " ");
+        int depth = path.length();
+        for (int i = 0; i < node.childCount; i++) {
+            path.append(node.children[i].label);
+            inorder(node.children[i], path);
+            path.setLength(depth);
+        }
+    }
+
+    /**
+     * Helper method to find the least entry in the subtree of a given node.
+     *
+     * @param node the root of the subtree
+     * @param path the key of the node, extended to the key of the result
+     * @return the entry with the least key in the subtree
+     */
+    private MapEntry<String, V> min(Node node, StringBuilder path) {
+        while (!node.hasValue) {
+            node = node.children[0];
+            path.append(node.label);
+        }
+        return new MapEntry<>(path.toString(), node.value);
+    }
+
+    /**
+     * Helper method to find the greatest entry in the subtree of a given node.
+     *
+     * @param node the root of the subtree
+     * @param path the key of the node, extended to the key of the result
+     * @return the entry with the greatest key in the subtree
+     */
+    private MapEntry<String, V> max(Node node, StringBuilder path) {
+        while (node.childCount > 0) {
+            node = node.children[node.childCount - 1];
+            path.append(node.label);
+        }
+        return new MapEntry<>(path.toString(), node.value);
+    }
+
+    /**
+     * Helper method to find the ceiling of a key in the subtree of a given node.
+     *
+     * @param node the root of the subtree, whose key matches the first pos
+     *        characters of the key
+     * @param key the key
+     * @param pos the number of characters of the key matched so far
+     * @param path the key of the node; left unchanged when null is returned
+     * @return the least entry of the subtree greater than or equal to the key, or
+     *         null if there is no such entry
+     */
+    private MapEntry<String, V> ceiling(Node node, String key, int pos, StringBuilder path) {
+        if (pos == key.length())
+            return min(node, path);
+        char c = key.charAt(pos);
+        int i = lowerBound(node, c);
+        if (i < node.childCount && node.children[i].label.charAt(0) == c) {
+            Node child = node.children[i];
+            int m = commonPrefix(child.label, key, pos);
+            int depth = path.length();
+            path.append(child.label);
+            if (m == child.label.length()) {
+                MapEntry<String, V> result = ceiling(child, key, pos + m, path);
+                if (result != null)
+                    return result;
+            } else if (pos + m == key.length() || child.label.charAt(m) > key.charAt(pos + m)) {
+                return min(child, path);
+            }
+            path.setLength(depth);
+            i++; // every key below this child is smaller than the key
+        }
+        if (i == node.childCount)
+            return null;
+        path.append(node.children[i].label);
+        return min(node.children[i], path);
+    }
+
+    /**
+     * Helper method to find the floor of a key in the subtree of a given node.
+     *
+     * @param node the root of the subtree, whose key matches the first pos
+     *        characters of the key
+     * @param key the key
+     * @param pos the number of characters of the key matched so far
+     * @param path the key of the node; left unchanged when null is returned
+     * @return the greatest entry of the subtree less than or equal to the key, or
+     *         null if there is no such entry
+     */
+    private MapEntry<String, V> floor(Node node, String key, int pos, StringBuilder path) {
+        if (pos < key.length()) {
+            char c = key.charAt(pos);
+            int i = lowerBound(node, c);
+            if (i < node.childCount && node.children[i].label.charAt(0) == c) {
+                Node child = node.children[i];
+                int m = commonPrefix(child.label, key, pos);
+                int depth = path.length();
+                path.append(child.label);
+                if (m == child.label.length()) {
+                    MapEntry<String, V> result = floor(child, key, pos + m, path);
+                    if (result != null)
+                        return result;
+                } else if (pos + m < key.length() && child.label.charAt(m) < key.charAt(pos + m)) {
+                    return max(child, path);
+                }
+                path.setLength(depth);
+            }
+            // every key below the children before index i is smaller than the key
+            if (i > 0) {
+                path.append(node.children[i - 1].label);
+                return max(node.children[i - 1], path);
+            }
+        }
+        return node.hasValue ? new MapEntry<>(path.toString(), node.value) : null;
+    }
+
+    /**
+     * Helper method to add every entry in the subtree of a given node to a list,
+     * in ascending key order.
+     *
+     * @param node the root of the subtree
+     * @param path the key of the node
+     * @param list the list the entries are added to
+     */
+    private void collect(Node node, StringBuilder path, ArrayList<MapEntry<String, V>> list) {
+        if (node.hasValue)
+            list.add(new MapEntry<>(path.toString(), node.value));
+        int depth = path.length();
+        for (int i = 0; i < node.childCount; i++) {
+            path.append(node.children[i].label);
+            collect(node.children[i], path, list);
+            path.setLength(depth);
+        }
+    }
+
+    /**
+     * Returns the number of leading characters of a label that match the key
+     * starting at a given position.
+     *
+     * @param label the edge label
+     * @param key the key
+     * @param pos the position in the key to start comparing from
+     * @return the length of the common prefix
+     */
+    private static int commonPrefix(String label, String key, int pos) {
+        int max = Math.min(label.length(), key.length() - pos);
+        int m = 0;
+        while (m < max && label.charAt(m) == key.charAt(pos + m))
+            m++;
+        return m;
+    }
+
+    /**
+     * Returns the index of the first child of a node whose label starts with a
+     * character greater than or equal to the given character.
+     *
+     * @param node the parent node
+     * @param c the character to search for
+     * @return the index of the first such child, or childCount if there is none
+     */
+    private int lowerBound(Node node, char c) {
+        int low = 0;
+        int high = node.childCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (node.children[mid].label.charAt(0) < c)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index of the child of a node whose label starts with the given
+     * character.
+     *
+     * @param node the parent node
+     * @param c the character to search for
+     * @return the index of the child if found, otherwise (-(insertion point) - 1)
+     */
+    private int indexOf(Node node, char c) {
+        int i = lowerBound(node, c);
+        if (i < node.childCount && node.children[i].label.charAt(0) == c)
+            return i;
+        return -i - 1;
+    }
+
+    /**
+     * Inserts a child into a node at the given index, growing the children array
+     * when it is full.
+     *
+     * @param node the parent node
+     * @param index the index at which the child is inserted
+     * @param child the child to insert
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void insertChild(Node node, int index, Node child) {
+        if (node.children == null) {
+            node.children = (Node[]) new StringTreeMap.Node[2];
+        } else if (node.childCount == node.children.length) {
+            Node[] grown = (Node[]) new StringTreeMap.Node[node.childCount * 2];
+            System.arraycopy(node.children, 0, grown, 0, node.childCount);
+            node.children = grown;
+        }
+        System.arraycopy(node.children, index, node.children, index + 1, node.childCount - index);
+        node.children[index] = child;
+        node.childCount++;
+    }
+
+    /**
+     * Removes the child at the given index from a node.
+     *
+     * @param node the parent node
+     * @param index the index of the child to remove
+     */
+    private void removeChild(Node node, int index) {
+        node.childCount--;
+        System.arraycopy(node.children, index + 1, node.children, index, node.childCount - index);
+        node.children[node.childCount] = null;
+        if (node.childCount == 0)
+            node.children = null;
+    }
+
+    /**
+     * Merges a valueless node with its only child, concatenating their labels.
+     *
+     * @param node the node to merge; it takes the place of its child
+     */
+    private void mergeWithChild(Node node) {
+        Node child = node.children[0];
+        node.label = node.label + child.label;
+        node.value = child.value;
+        node.hasValue = child.hasValue;
+        node.children = child.children;
+        node.childCount = child.childCount;
+    }
+}
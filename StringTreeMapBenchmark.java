@@ -0,0 +1,119 @@
+import java.util.Random;
+
+/**
+ * A benchmark comparing StringTreeMap with TreeMap on long URL-like keys. Both
+ * maps are built from the same keys in the same random order. The benchmark
+ * reports the memory each map retains, including its copy of the keys, and the
+ * average time of contains and ceiling over a mix of present and absent keys.
+ *
+ * Usage: java StringTreeMapBenchmark [keys lookups rounds]. The first rounds
+ * warm up the JIT; the reported times are those of the last round. Footprints
+ * come from the heap usage after a garbage collection, so they are estimates.
+ *
+ * @author Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since 2024-6-24 (date of last revision)
+ */
+public class StringTreeMapBenchmark {
+    private static final String[] HOSTS = { "https://www.example.com", "https://shop.example.com",
+            "https://docs.example.org", "https://api.example.net" };
+    private static final String[] SECTIONS = { "/products/category-", "/articles/2024/", "/users/profile-",
+            "/v2/resources/item-" };
+
+    /**
+     * Runs the benchmark and prints the report.
+     *
+     * @param args the number of keys, lookups per round and rounds
+     * @throws InterruptedException if interrupted while waiting for the garbage
+     *         collector
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int keyCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        Random random = new Random(42);
+        String[] keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++)
+            keys[i] = url(random);
+        // Half the probes are present keys, half are absent keys sharing a long prefix
+        String[] probes = new String[lookups];
+        for (int i = 0; i < lookups; i++) {
+            String key = keys[random.nextInt(keyCount)];
+            probes[i] = (i % 2 == 0) ? String.valueOf(key.toCharArray()) : key + "#x";
+        }
+
+        long base = usedMemory();
+        TreeMap<String, Integer> tree = new TreeMap<>();
+        for (int i = 0; i < keyCount; i++)
+            tree.add(String.valueOf(keys[i].toCharArray()), i); // a real copy, so the map's own keys are measured
+        long treeBytes = usedMemory() - base;
+
+        base = usedMemory();
+        StringTreeMap<Integer> trie = new StringTreeMap<>();
+        for (int i = 0; i < keyCount; i++)
+            trie.add(String.valueOf(keys[i].toCharArray()), i);
+        long trieBytes = usedMemory() - base;
+
+        long treeContains = 0, trieContains = 0, treeCeiling = 0, trieCeiling = 0;
+        int found = 0;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (String probe : probes)
+                found += tree.contains(probe) ? 1 : 0;
+            treeContains = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (String probe : probes)
+                found += trie.contains(probe) ? 1 : 0;
+            trieContains = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (String probe : probes)
+                found += tree.ceiling(probe) != null ? 1 : 0;
+            treeCeiling = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (String probe : probes)
+                found += trie.ceiling(probe) != null ? 1 : 0;
+            trieCeiling = System.nanoTime() - start;
+        }
+
+        System.out.println("Keys: " + keyCount + ", lookups: " + lookups + ", rounds: " + rounds
+                + " (checksum " + found + ")");
+        System.out.printf("%-14s %14s %14s%n", "", "TreeMap", "StringTreeMap");
+        System.out.printf("%-14s %11.1f MB %11.1f MB%n", "Footprint", treeBytes / 1e6, trieBytes / 1e6);
+        System.out.printf("%-14s %11.1f ns %11.1f ns%n", "contains", (double) treeContains / lookups,
+                (double) trieContains / lookups);
+        System.out.printf("%-14s %11.1f ns %11.1f ns%n", "ceiling", (double) treeCeiling / lookups,
+                (double) trieCeiling / lookups);
+    }
+
+    /**
+     * Returns a random URL-like key. Keys share hosts and path sections, as real
+     * URLs do, and end with distinct ids.
+     *
+     * @param random the source of randomness
+     * @return the key
+     */
+    private static String url(Random random) {
+        return HOSTS[random.nextInt(HOSTS.length)] + SECTIONS[random.nextInt(SECTIONS.length)]
+                + random.nextInt(1000) + "/item-" + random.nextInt(1_000_000) + "?ref=campaign-"
+                + random.nextInt(50);
+    }
+
+    /**
+     * Returns the heap memory in use after asking for a garbage collection.
+     *
+     * @return the number of bytes in use
+     * @throws InterruptedException if interrupted while waiting for the collector
+     */
+    private static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -1,3 +1,8 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.Comparator;
 
 /**
@@ -69,5 +74,169 @@ public class Test {
 
         System.out.println("\tfloor(\"Thursday\") : " + tree.floor("Thursday"));
         System.out.println("\tfloor(\"October\") : " + tree.floor("October"));
+
+        System.out.println("\nStringTreeMap (radix tree)");
+        StringTreeMap<Integer> trie = new StringTreeMap<>();
+        trie.add("Monday", 65);
+        trie.add("Tuesday", 71);
+        trie.add("Wednesday", 68);
+        trie.add("Thursday", 66);
+        trie.add("Friday", 64);
+        trie.add("Saturday", 70);
+        trie.add("Sunday", 75);
+        System.out.print("\tInorder Traversal:\n\t");
+        trie.inorder();
+        System.out.println();
+
+        System.out.println("\tTree contains \"Thursday\"? " + trie.contains("Thursday"));
+        System.out.println("\tTree contains \"March\"? " + trie.contains("March"));
+
+        System.out.println("\tprefixScan(\"T\") : " + trie.prefixScan("T"));
+
+        System.out.println("\t\"Thursday\" removed? " + trie.remove("Thursday"));
+        System.out.println("\t\"March\" removed? " + trie.remove("March"));
+
+        System.out.println("\tFirst: " + trie.first());
+        System.out.println("\tLast : " + trie.last());
+
+        System.out.println("\tCeiling(\"Monday\") : " + trie.ceiling("Monday"));
+        System.out.println("\tCeiling(\"October\") : " + trie.ceiling("October"));
+
+        System.out.println("\tfloor(\"Thursday\") : " + trie.floor("Thursday"));
+        System.out.println("\tfloor(\"October\") : " + trie.floor("October"));
+
+        System.out.println("\tprefixScan(\"S\") : " + trie.prefixScan("S"));
+        System.out.println("\tprefixScan(\"March\") : " + trie.prefixScan("March"));
+
+        System.out.println("\nStringTreeMap edge cases");
+        trie = new StringTreeMap<>();
+        trie.add("Sunday", 1);
+        trie.add("Sun", 2); // prefix of another key: the value goes on a split node
+        trie.add("", 0); // the empty key is stored on the root
+        trie.add("Saturday", 3);
+        trie.add("Sat", 4);
+        System.out.print("\tInorder Traversal:\n\t");
+        trie.inorder();
+        System.out.println("\tTree contains \"\"? " + trie.contains(""));
+        System.out.println("\tTree contains \"Su\"? " + trie.contains("Su"));
+        System.out.println("\tCeiling(\"Sunb\") : " + trie.ceiling("Sunb"));
+        System.out.println("\tCeiling(\"Sune\") : " + trie.ceiling("Sune"));
+        System.out.println("\tfloor(\"Sunb\") : " + trie.floor("Sunb"));
+        System.out.println("\tfloor(\"Sune\") : " + trie.floor("Sune"));
+        System.out.println("\tCeiling(\"Satu\") : " + trie.ceiling("Satu"));
+        System.out.println("\tfloor(\"Satu\") : " + trie.floor("Satu"));
+        System.out.println("\tCeiling(\"Sa\") : " + trie.ceiling("Sa"));
+        System.out.println("\tfloor(\"Sa\") : " + trie.floor("Sa"));
+        System.out.println("\tprefixScan(\"Su\") : " + trie.prefixScan("Su"));
+        System.out.println("\tprefixScan(\"\") : " + trie.prefixScan(""));
+        // Each removal leaves a valueless node with one child, which is merged into it
+        System.out.println("\t\"Sat\" removed? " + trie.remove("Sat"));
+        System.out.println("\t\"Sun\" removed? " + trie.remove("Sun"));
+        System.out.println("\t\"Saturday\" removed? " + trie.remove("Saturday"));
+        System.out.println("\tTree contains \"Sun\"? " + trie.contains("Sun"));
+        System.out.println("\tprefixScan(\"S\") : " + trie.prefixScan("S"));
+        System.out.println("\tCeiling(\"Sa\") : " + trie.ceiling("Sa"));
+        System.out.println("\tfloor(\"Sz\") : " + trie.floor("Sz"));
+        System.out.println("\t\"\" removed? " + trie.remove(""));
+        System.out.println("\tFirst: " + trie.first());
+        System.out.println("\tSize: " + trie.size());
+
+        System.out.println("\nTreeMapServer on localhost");
+        try (TreeMapServer server = new TreeMapServer(0)) {
+            server.start();
+            try (TreeMapClient client = new TreeMapClient(server.getPort())) {
+                // Pipelined: all the adds are sent before any response is read
+                String[] days = { "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday" };
+                String[] temps = { "65", "71", "68", "66", "64", "70", "75" };
+                for (int i = 0; i < days.length; i++)
+                    client.sendAdd(days[i], temps[i]);
+                client.flush();
+                boolean added = true;
+                for (int i = 0; i < days.length; i++)
+                    added &= client.readBoolean();
+                System.out.println("\tAll days added? " + added);
+
+                System.out.println("\tTree contains \"Thursday\"? " + client.contains("Thursday"));
+                System.out.println("\tTree contains \"March\"? " + client.contains("March"));
+
+                System.out.println("\t\"Thursday\" removed? " + client.remove("Thursday"));
+                System.out.println("\t\"March\" removed? " + client.remove("March"));
+
+                System.out.println("\tFirst: " + client.first());
+                System.out.println("\tLast : " + client.last());
+
+                System.out.println("\tCeiling(\"Monday\") : " + client.ceiling("Monday"));
+                System.out.println("\tCeiling(\"October\") : " + client.ceiling("October"));
+
+                System.out.println("\tfloor(\"Thursday\") : " + client.floor("Thursday"));
+                System.out.println("\tfloor(\"October\") : " + client.floor("October"));
+
+                System.out.println("\trangeScan(\"M\", \"T\") : " + client.rangeScan("M", "T"));
+            }
+        } catch (IOException e) {
+            System.out.println("\tServer error: " + e.getMessage());
+        }
+
+        System.out.println("\nExport and import");
+        try {
+            StringWriter csv = new StringWriter();
+            CsvFormat.write(tree, Codec.STRING, Codec.INTEGER, csv);
+            System.out.print("\tCSV:\n\t" + csv.toString().replace("\n", "\n\t"));
+            TreeMap<String, Integer> fromCsv = new TreeMap<>();
+            CsvFormat.read(fromCsv, Codec.STRING, Codec.INTEGER, new StringReader(csv.toString()));
+            System.out.print("Imported from CSV:\n\t");
+            fromCsv.inorder();
+
+            ByteArrayOutputStream binary = new ByteArrayOutputStream();
+            BinaryFormat.write(tree, Codec.STRING, Codec.INTEGER, binary);
+            System.out.println("\tBinary size: " + binary.size() + " bytes");
+            TreeMap<String, Integer> fromBinary = new TreeMap<>();
+            BinaryFormat.read(fromBinary, Codec.STRING, Codec.INTEGER, new ByteArrayInputStream(binary.toByteArray()));
+            System.out.print("\tImported from binary:\n\t");
+            fromBinary.inorder();
+            System.out.println("\tFirst: " + fromBinary.first());
+            System.out.println("\tLast : " + fromBinary.last());
+
+            BST<String> bst = new BST<>();
+            bst.add("plain");
+            bst.add("Hello, world");
+            bst.add("say \"hi\"");
+            bst.add("");
+            csv = new StringWriter();
+            CsvFormat.write(bst, Codec.STRING, csv);
+            System.out.print("\tBST CSV:\n\t" + csv.toString().replace("\n", "\n\t"));
+            BST<String> bstFromCsv = new BST<>();
+            CsvFormat.read(bstFromCsv, Codec.STRING, new StringReader(csv.toString()));
+            System.out.println("BST imported from CSV contains \"Hello, world\"? " + bstFromCsv.contains("Hello, world"));
+            binary = new ByteArrayOutputStream();
+            BinaryFormat.write(bst, Codec.STRING, binary);
+            BST<String> bstFromBinary = new BST<>();
+            BinaryFormat.read(bstFromBinary, Codec.STRING, new ByteArrayInputStream(binary.toByteArray()));
+            System.out.print("\tBST imported from binary: ");
+            bstFromBinary.inorder();
+            System.out.println();
+
+            // Removing the root leaf must keep size() right, since it is the record count
+            BST<String> regrown = new BST<>();
+            regrown.add("a");
+            regrown.remove("a");
+            regrown.add("b");
+            regrown.add("c");
+            binary = new ByteArrayOutputStream();
+            BinaryFormat.write(regrown, Codec.STRING, binary);
+            BST<String> regrownFromBinary = new BST<>();
+            BinaryFormat.read(regrownFromBinary, Codec.STRING, new ByteArrayInputStream(binary.toByteArray()));
+            System.out.print("\tRegrown BST size " + regrown.size() + ", imported from binary: ");
+            regrownFromBinary.inorder();
+            System.out.println();
+            regrown.remove("b");
+            regrown.remove("c");
+            binary = new ByteArrayOutputStream();
+            BinaryFormat.write(regrown, Codec.STRING, binary);
+            BinaryFormat.read(regrownFromBinary, Codec.STRING, new ByteArrayInputStream(binary.toByteArray()));
+            System.out.println("\tEmptied BST size " + regrown.size() + ", imported size " + regrownFromBinary.size());
+        } catch (IOException e) {
+            System.out.println("\tExport error: " + e.getMessage());
+        }
     }
 }
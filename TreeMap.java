@@ -1,4 +1,8 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * A TreeMap implementation that uses a binary search tree where the nodes have
@@ -11,7 +15,7 @@ import java.util.Comparator;
  * @version Java 11 / VSCode
  * @since 2024-6-24 (date of last revision)
  */
-public class TreeMap<K extends Comparable<K>, V> {
+public class TreeMap<K extends Comparable<K>, V> implements Iterable<MapEntry<K, V>> {
     private TreeNode root;
     private int size;
     private Comparator<K> comp;
@@ -284,6 +288,131 @@ public class TreeMap<K extends Comparable<K>, V> {
         return result == null ? null : result.entry;
     }
 
+    /**
+     * Returns all the entries whose key lies between low and high, both inclusive,
+     * in ascending key order. Subtrees outside the range are not visited.
+     * 
+     * @param low the lowest key of the range
+     * @param high the highest key of the range
+     * @return the list of entries in the range, empty if there are none
+     */
+    public ArrayList<MapEntry<K, V>> rangeScan(K low, K high) {
+        ArrayList<MapEntry<K, V>> list = new ArrayList<>();
+        rangeScan(root, low, high, list);
+        return list;
+    }
+
+    /**
+     * Helper method to collect the entries in a range starting from a given node.
+     * 
+     * @param node the node to start the traversal from
+     * @param low the lowest key of the range
+     * @param high the highest key of the range
+     * @param list the list the entries are added to
+     */
+    private void rangeScan(TreeNode node, K low, K high, ArrayList<MapEntry<K, V>> list) {
+        if (node != null) {
+            int cmpLow = compare(low, node.entry.getKey());
+            int cmpHigh = compare(high, node.entry.getKey());
+            if (cmpLow < 0)
+                rangeScan(node.left, low, high, list);
+            if (cmpLow <= 0 && cmpHigh >= 0)
+                list.add(node.entry);
+            if (cmpHigh > 0)
+                rangeScan(node.right, low, high, list);
+        }
+    }
+
+    /**
+     * Returns an iterator over the entries of this map in ascending key order. The
+     * iterator does not support remove, and the map must not be modified while it
+     * is in use.
+     * 
+     * @return an iterator over the entries of this map
+     */
+    @Override
+    public Iterator<MapEntry<K, V>> iterator() {
+        return new Iterator<MapEntry<K, V>>() {
+            private final ArrayDeque<TreeNode> stack = pushLeft(new ArrayDeque<>(), root);
+
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public MapEntry<K, V> next() {
+                if (stack.isEmpty())
+                    throw new NoSuchElementException();
+                TreeNode node = stack.pop();
+                pushLeft(stack, node.right);
+                return node.entry;
+            }
+        };
+    }
+
+    /**
+     * Helper method to push a node and all its left descendants onto a stack.
+     * 
+     * @param stack the stack of nodes still to be visited
+     * @param node the node to start from
+     * @return the stack
+     */
+    private ArrayDeque<TreeNode> pushLeft(ArrayDeque<TreeNode> stack, TreeNode node) {
+        while (node != null) {
+            stack.push(node);
+            node = node.left;
+        }
+        return stack;
+    }
+
+    /**
+     * Replaces the contents of this map with entries given in strictly ascending
+     * key order. The tree is built balanced in linear time, placing each entry
+     * without searching for it. The map is left unchanged if an exception is
+     * thrown.
+     * 
+     * @param entries the entries, in strictly ascending key order
+     * @param count the number of entries to take from the iterator
+     * @throws IllegalArgumentException if count is negative or the keys are not in
+     *         strictly ascending order
+     * @throws NoSuchElementException if the iterator has fewer than count entries
+     */
+    public void loadSorted(Iterator<MapEntry<K, V>> entries, int count) {
+        if (count < 0)
+            throw new IllegalArgumentException("Negative count: " + count);
+        ArrayList<K> previous = new ArrayList<>(1);
+        root = buildSorted(entries, count, previous);
+        size = count;
+    }
+
+    /**
+     * Helper method to build a balanced subtree from the next entries of an
+     * iterator.
+     * 
+     * @param entries the entries, in strictly ascending key order
+     * @param count the number of entries in the subtree
+     * @param previous holds the key of the last entry taken, if any
+     * @return the root of the subtree
+     */
+    private TreeNode buildSorted(Iterator<MapEntry<K, V>> entries, int count, ArrayList<K> previous) {
+        if (count == 0)
+            return null;
+        int leftCount = (count - 1) / 2;
+        TreeNode left = buildSorted(entries, leftCount, previous);
+        MapEntry<K, V> entry = entries.next();
+        if (previous.isEmpty())
+            previous.add(entry.getKey());
+        else if (compare(previous.get(0), entry.getKey()) >= 0)
+            throw new IllegalArgumentException("Keys are not in ascending order: " + entry.getKey());
+        else
+            previous.set(0, entry.getKey());
+        TreeNode node = new TreeNode(entry.getKey(), entry.getValue()); // never share the caller's entry
+        node.left = left;
+        node.right = buildSorted(entries, count - 1 - leftCount, previous);
+        return node;
+    }
+
     /**
      * Performs an inorder traversal of the tree, printing each entry.
      */
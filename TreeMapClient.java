@@ -0,0 +1,335 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+
+/**
+ * A client for TreeMapServer. Each blocking method (add, contains, ...) sends
+ * one request and waits for its response. To pipeline, call the send methods
+ * several times, then flush, then read the responses in the same order with
+ * readBoolean, readEntry and readEntries.
+ *
+ * Each String argument must encode to at most 65535 bytes, the limit of
+ * DataOutputStream.writeUTF. A longer argument is rejected with a
+ * UTFDataFormatException before any part of the request is queued, so the
+ * connection stays usable.
+ *
+ * A client is not thread-safe; use one client per thread.
+ *
+ * @author Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since 2024-6-24 (date of last revision)
+ */
+public class TreeMapClient implements AutoCloseable {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    /**
+     * Constructs a client connected to a server on the loopback interface.
+     *
+     * @param port the port the server is listening on
+     * @throws IOException if the connection cannot be established
+     */
+    public TreeMapClient(int port) throws IOException {
+        socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), TreeMapServer.BUFFER_SIZE));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), TreeMapServer.BUFFER_SIZE));
+    }
+
+    /**
+     * Closes the connection to the server.
+     *
+     * @throws IOException if the socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Queues an add request. Its response is read with readBoolean.
+     *
+     * @param key the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @throws IOException if the connection fails
+     */
+    public void sendAdd(String key, String value) throws IOException {
+        checkLength(key);
+        checkLength(value);
+        out.writeByte(TreeMapServer.ADD);
+        out.writeUTF(key);
+        out.writeUTF(value);
+    }
+
+    /**
+     * Queues a remove request. Its response is read with readBoolean.
+     *
+     * @param key the key whose mapping is to be removed from the map
+     * @throws IOException if the connection fails
+     */
+    public void sendRemove(String key) throws IOException {
+        send(TreeMapServer.REMOVE, key);
+    }
+
+    /**
+     * Queues a contains request. Its response is read with readBoolean.
+     *
+     * @param key the key whose presence in the map is to be tested
+     * @throws IOException if the connection fails
+     */
+    public void sendContains(String key) throws IOException {
+        send(TreeMapServer.CONTAINS, key);
+    }
+
+    /**
+     * Queues a ceiling request. Its response is read with readEntry.
+     *
+     * @param key the key
+     * @throws IOException if the connection fails
+     */
+    public void sendCeiling(String key) throws IOException {
+        send(TreeMapServer.CEILING, key);
+    }
+
+    /**
+     * Queues a floor request. Its response is read with readEntry.
+     *
+     * @param key the key
+     * @throws IOException if the connection fails
+     */
+    public void sendFloor(String key) throws IOException {
+        send(TreeMapServer.FLOOR, key);
+    }
+
+    /**
+     * Queues a first request. Its response is read with readEntry.
+     *
+     * @throws IOException if the connection fails
+     */
+    public void sendFirst() throws IOException {
+        out.writeByte(TreeMapServer.FIRST);
+    }
+
+    /**
+     * Queues a last request. Its response is read with readEntry.
+     *
+     * @throws IOException if the connection fails
+     */
+    public void sendLast() throws IOException {
+        out.writeByte(TreeMapServer.LAST);
+    }
+
+    /**
+     * Queues a range scan request. Its response is read with readEntries.
+     *
+     * @param low the lowest key of the range
+     * @param high the highest key of the range
+     * @throws IOException if the connection fails
+     */
+    public void sendRangeScan(String low, String high) throws IOException {
+        checkLength(low);
+        checkLength(high);
+        out.writeByte(TreeMapServer.RANGE);
+        out.writeUTF(low);
+        out.writeUTF(high);
+    }
+
+    /**
+     * Sends every queued request to the server.
+     *
+     * @throws IOException if the connection fails
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Reads the response to an add, remove or contains request.
+     *
+     * @return the result of the request
+     * @throws IOException if the connection fails
+     */
+    public boolean readBoolean() throws IOException {
+        return in.readBoolean();
+    }
+
+    /**
+     * Reads the response to a ceiling, floor, first or last request.
+     *
+     * @return the entry found, or null if there is none
+     * @throws IOException if the connection fails
+     */
+    public MapEntry<String, String> readEntry() throws IOException {
+        if (!in.readBoolean())
+            return null;
+        String key = in.readUTF();
+        return new MapEntry<>(key, in.readUTF());
+    }
+
+    /**
+     * Reads the response to a range scan request.
+     *
+     * @return the list of entries in the range
+     * @throws IOException if the connection fails
+     */
+    public ArrayList<MapEntry<String, String>> readEntries() throws IOException {
+        int count = in.readInt();
+        ArrayList<MapEntry<String, String>> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String key = in.readUTF();
+            list.add(new MapEntry<>(key, in.readUTF()));
+        }
+        return list;
+    }
+
+    /**
+     * Associates the specified value with the specified key in the remote map.
+     *
+     * @param key the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return true if the key was not already present in the map
+     * @throws IOException if the connection fails
+     */
+    public boolean add(String key, String value) throws IOException {
+        sendAdd(key, value);
+        flush();
+        return readBoolean();
+    }
+
+    /**
+     * Removes the mapping for a key from the remote map if it is present.
+     *
+     * @param key the key whose mapping is to be removed from the map
+     * @return true if the key was found and removed, false if the key was not found
+     * @throws IOException if the connection fails
+     */
+    public boolean remove(String key) throws IOException {
+        sendRemove(key);
+        flush();
+        return readBoolean();
+    }
+
+    /**
+     * Returns true if the remote map contains a mapping for the specified key.
+     *
+     * @param key the key whose presence in the map is to be tested
+     * @return true if the map contains a mapping for the specified key
+     * @throws IOException if the connection fails
+     */
+    public boolean contains(String key) throws IOException {
+        sendContains(key);
+        flush();
+        return readBoolean();
+    }
+
+    /**
+     * Returns the entry of the remote map with the least key greater than or equal
+     * to the given key.
+     *
+     * @param key the key
+     * @return the entry found, or null if there is no such key
+     * @throws IOException if the connection fails
+     */
+    public MapEntry<String, String> ceiling(String key) throws IOException {
+        sendCeiling(key);
+        flush();
+        return readEntry();
+    }
+
+    /**
+     * Returns the entry of the remote map with the greatest key less than or equal
+     * to the given key.
+     *
+     * @param key the key
+     * @return the entry found, or null if there is no such key
+     * @throws IOException if the connection fails
+     */
+    public MapEntry<String, String> floor(String key) throws IOException {
+        sendFloor(key);
+        flush();
+        return readEntry();
+    }
+
+    /**
+     * Returns the entry of the remote map with the lowest key.
+     *
+     * @return the entry found, or null if the map is empty
+     * @throws IOException if the connection fails
+     */
+    public MapEntry<String, String> first() throws IOException {
+        sendFirst();
+        flush();
+        return readEntry();
+    }
+
+    /**
+     * Returns the entry of the remote map with the highest key.
+     *
+     * @return the entry found, or null if the map is empty
+     * @throws IOException if the connection fails
+     */
+    public MapEntry<String, String> last() throws IOException {
+        sendLast();
+        flush();
+        return readEntry();
+    }
+
+    /**
+     * Returns all the entries of the remote map whose key lies between low and
+     * high, both inclusive, in ascending key order.
+     *
+     * @param low the lowest key of the range
+     * @param high the highest key of the range
+     * @return the list of entries in the range
+     * @throws IOException if the connection fails
+     */
+    public ArrayList<MapEntry<String, String>> rangeScan(String low, String high) throws IOException {
+        sendRangeScan(low, high);
+        flush();
+        return readEntries();
+    }
+
+    /**
+     * Queues a request that takes a single key.
+     *
+     * @param op the opcode of the request
+     * @param key the key
+     * @throws IOException if the connection fails
+     */
+    private void send(byte op, String key) throws IOException {
+        checkLength(key);
+        out.writeByte(op);
+        out.writeUTF(key);
+    }
+
+    /**
+     * Checks that a String fits in writeUTF, whose length prefix is an unsigned
+     * short, so that a request is never left half written in the buffer.
+     *
+     * @param s the String argument
+     * @throws UTFDataFormatException if s encodes to more than 65535 bytes
+     */
+    private static void checkLength(String s) throws UTFDataFormatException {
+        if (s.length() <= 65535 / 3)
+            return; // fits even if every char takes 3 bytes
+        long length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F)
+                length++;
+            else if (c <= 0x07FF)
+                length += 2;
+            else
+                length += 3;
+        }
+        if (length > 65535)
+            throw new UTFDataFormatException("Argument too long: " + length + " bytes, the limit is 65535");
+    }
+}
@@ -0,0 +1,183 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A load generator for TreeMapServer. Several connections each send a mix of
+ * lookups and updates in pipelined windows, then the latency percentiles of all
+ * the requests and the overall throughput are reported.
+ *
+ * Usage: java TreeMapLoadGenerator [port connections requests depth]. When no
+ * port (or port 0) is given, a server is started in this process. requests is
+ * the number of requests per connection and depth the number of requests in
+ * each pipelined window.
+ *
+ * @author Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since 2024-6-24 (date of last revision)
+ */
+public class TreeMapLoadGenerator {
+    private static final int KEYS = 100_000;
+
+    /**
+     * Runs the load and prints the report.
+     *
+     * @param args the port, connections, requests per connection and pipeline depth
+     * @throws Exception if the server cannot be reached or a connection fails
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 32;
+
+        TreeMapServer server = null;
+        if (port == 0) {
+            server = new TreeMapServer(0);
+            server.start();
+            port = server.getPort();
+        }
+        try {
+            preload(port);
+            ExecutorService executor = TreeMapServer.newExecutor();
+            ArrayList<Future<long[]>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < connections; i++) {
+                int serverPort = port;
+                long seed = i;
+                futures.add(executor.submit(() -> run(serverPort, requests, depth, seed)));
+            }
+            long[] latencies = new long[connections * requests];
+            int count = 0;
+            for (Future<long[]> future : futures) {
+                long[] part = future.get();
+                System.arraycopy(part, 0, latencies, count, part.length);
+                count += part.length;
+            }
+            long elapsed = System.nanoTime() - start;
+            executor.shutdown();
+
+            Arrays.sort(latencies);
+            System.out.println("Connections: " + connections + ", requests: " + latencies.length
+                    + ", pipeline depth: " + depth);
+            System.out.printf("p50 latency: %.1f us%n", percentile(latencies, 0.50) / 1000.0);
+            System.out.printf("p99 latency: %.1f us%n", percentile(latencies, 0.99) / 1000.0);
+            System.out.printf("Throughput : %.0f requests/s%n", latencies.length / (elapsed / 1e9));
+        } finally {
+            if (server != null)
+                server.close();
+        }
+    }
+
+    /**
+     * Fills the server with KEYS entries, using a single pipelined connection.
+     *
+     * @param port the port the server is listening on
+     * @throws IOException if the connection fails
+     */
+    private static void preload(int port) throws IOException {
+        try (TreeMapClient client = new TreeMapClient(port)) {
+            // Read the responses every 1000 requests so neither side blocks on a full
+            // socket buffer
+            for (int done = 0; done < KEYS; done += 1000) {
+                int window = Math.min(1000, KEYS - done);
+                for (int i = done; i < done + window; i++)
+                    client.sendAdd(key(i), Integer.toString(i));
+                client.flush();
+                for (int i = 0; i < window; i++)
+                    client.readBoolean();
+            }
+        }
+    }
+
+    /**
+     * Sends requests on one connection in pipelined windows of depth requests.
+     *
+     * @param port the port the server is listening on
+     * @param requests the number of requests to send
+     * @param depth the number of requests sent before reading their responses
+     * @param seed the seed of the random workload
+     * @return the latency of each request, in nanoseconds
+     * @throws IOException if the connection fails
+     */
+    private static long[] run(int port, int requests, int depth, long seed) throws IOException {
+        Random random = new Random(seed);
+        long[] latencies = new long[requests];
+        long[] sentAt = new long[depth];
+        byte[] ops = new byte[depth];
+        try (TreeMapClient client = new TreeMapClient(port)) {
+            for (int done = 0; done < requests; ) {
+                int window = Math.min(depth, requests - done);
+                for (int i = 0; i < window; i++) {
+                    ops[i] = send(client, random);
+                    sentAt[i] = System.nanoTime();
+                }
+                client.flush();
+                for (int i = 0; i < window; i++) {
+                    if (ops[i] == TreeMapServer.CEILING || ops[i] == TreeMapServer.FLOOR)
+                        client.readEntry();
+                    else
+                        client.readBoolean();
+                    latencies[done + i] = System.nanoTime() - sentAt[i];
+                }
+                done += window;
+            }
+        }
+        return latencies;
+    }
+
+    /**
+     * Queues one random request: 50% contains, 15% ceiling, 15% floor, 10% add and
+     * 10% remove.
+     *
+     * @param client the client to queue the request on
+     * @param random the source of randomness
+     * @return the opcode of the request
+     * @throws IOException if the connection fails
+     */
+    private static byte send(TreeMapClient client, Random random) throws IOException {
+        int n = random.nextInt(KEYS);
+        int choice = random.nextInt(100);
+        if (choice < 50) {
+            client.sendContains(key(n));
+            return TreeMapServer.CONTAINS;
+        } else if (choice < 65) {
+            client.sendCeiling(key(n));
+            return TreeMapServer.CEILING;
+        } else if (choice < 80) {
+            client.sendFloor(key(n));
+            return TreeMapServer.FLOOR;
+        } else if (choice < 90) {
+            client.sendAdd(key(n), Integer.toString(n));
+            return TreeMapServer.ADD;
+        } else {
+            client.sendRemove(key(n));
+            return TreeMapServer.REMOVE;
+        }
+    }
+
+    /**
+     * Returns the key with the given number. Keys are hashed so they are not added
+     * in sorted order, which would degenerate the unbalanced tree into a list.
+     *
+     * @param n the number of the key
+     * @return the key
+     */
+    private static String key(int n) {
+        return "key-" + Integer.toHexString(n * 0x9E3779B1);
+    }
+
+    /**
+     * Returns a percentile of sorted values.
+     *
+     * @param sorted the values, in ascending order
+     * @param p the percentile, between 0 and 1
+     * @return the value at that percentile
+     */
+    private static long percentile(long[] sorted, double p) {
+        return sorted[(int) Math.round(p * (sorted.length - 1))];
+    }
+}
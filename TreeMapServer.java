@@ -0,0 +1,366 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A server that shares one TreeMap with String keys and values between several
+ * processes. It listens on the loopback interface only and serves each
+ * connection on its own thread, using virtual threads when the running JVM
+ * provides them.
+ *
+ * Requests use a compact binary protocol: a one byte opcode followed by its
+ * String arguments, each written with DataOutputStream.writeUTF, which limits
+ * every key, value and range bound to 65535 bytes once encoded. Clients may
+ * pipeline requests; responses are sent back in request order. All the requests
+ * already buffered on a connection are executed as one batch under a single
+ * lock acquisition and their responses are written with a single flush.
+ *
+ * Responses are a byte (0 or 1) for ADD, REMOVE and CONTAINS; an entry for
+ * CEILING, FLOOR, FIRST and LAST, written as a presence byte followed by the key
+ * and value when present; and an int count followed by that many key/value
+ * pairs for RANGE.
+ *
+ * @author Yinglong Lin
+ * @version Java 11 / VSCode
+ * @since 2024-6-24 (date of last revision)
+ */
+public class TreeMapServer implements AutoCloseable {
+    /** Opcode of add(key, value) */
+    public static final byte ADD = 1;
+    /** Opcode of remove(key) */
+    public static final byte REMOVE = 2;
+    /** Opcode of contains(key) */
+    public static final byte CONTAINS = 3;
+    /** Opcode of ceiling(key) */
+    public static final byte CEILING = 4;
+    /** Opcode of floor(key) */
+    public static final byte FLOOR = 5;
+    /** Opcode of first() */
+    public static final byte FIRST = 6;
+    /** Opcode of last() */
+    public static final byte LAST = 7;
+    /** Opcode of rangeScan(low, high) */
+    public static final byte RANGE = 8;
+
+    static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_BATCH = 256;
+
+    private final TreeMap<String, String> map;
+    private final ReentrantReadWriteLock lock;
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+    private final Set<Socket> connections;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a server for an empty map, bound to the given port on the
+     * loopback interface. The server does not accept connections until start is
+     * called.
+     *
+     * @param port the port to listen on, or 0 to pick any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public TreeMapServer(int port) throws IOException {
+        this.map = new TreeMap<>();
+        this.lock = new ReentrantReadWriteLock();
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.executor = newExecutor();
+        this.connections = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Returns the port this server is listening on.
+     *
+     * @return the port this server is listening on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Starts accepting connections in the background.
+     */
+    public void start() {
+        executor.execute(this::acceptLoop);
+    }
+
+    /**
+     * Stops the server and closes every open connection.
+     */
+    @Override
+    public void close() {
+        // Set before the connections are closed, so that a socket accepted
+        // concurrently is either closed here or by the accept loop
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+        executor.shutdownNow();
+        for (Socket socket : connections)
+            closeQuietly(socket);
+    }
+
+    /**
+     * Returns an executor that runs each task on a new virtual thread when the JVM
+     * supports them (Java 21 and later), or on a pooled platform thread otherwise.
+     *
+     * @return the executor
+     */
+    static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Accepts connections until the server socket is closed, serving each one on
+     * its own thread.
+     */
+    private void acceptLoop() {
+        try {
+            while (true) {
+                Socket socket = serverSocket.accept();
+                connections.add(socket);
+                if (closed) {
+                    // close() may have gone through the connections before this one was added
+                    connections.remove(socket);
+                    closeQuietly(socket);
+                    return;
+                }
+                try {
+                    executor.execute(() -> serve(socket));
+                } catch (RejectedExecutionException e) {
+                    // close() shut the executor down after this socket was accepted
+                    connections.remove(socket);
+                    closeQuietly(socket);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // The server socket was closed
+        }
+    }
+
+    /**
+     * Serves the requests of one connection until the client disconnects or sends
+     * a malformed request.
+     *
+     * @param socket the connection to serve
+     */
+    private void serve(Socket socket) {
+        byte[] ops = new byte[MAX_BATCH];
+        String[] firsts = new String[MAX_BATCH];
+        String[] seconds = new String[MAX_BATCH];
+        Object[] results = new Object[MAX_BATCH];
+        try {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+            int op = in.read();
+            while (op >= 0) {
+                // Gather every request that has already arrived into one batch
+                int count = 0;
+                boolean writes = false;
+                while (op >= 0) {
+                    ops[count] = (byte) op;
+                    readArguments(in, ops[count], firsts, seconds, count);
+                    writes |= (op == ADD || op == REMOVE);
+                    count++;
+                    if (count == MAX_BATCH || in.available() == 0)
+                        break;
+                    op = in.read();
+                }
+                execute(count, writes, ops, firsts, seconds, results);
+                for (int i = 0; i < count; i++) {
+                    writeResult(out, ops[i], results[i]);
+                    firsts[i] = seconds[i] = null;
+                    results[i] = null;
+                }
+                out.flush();
+                if (op >= 0)
+                    op = in.read();
+            }
+        } catch (IOException e) {
+            // The client disconnected or sent a malformed request
+        } finally {
+            connections.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Reads the arguments of a request.
+     *
+     * @param in the stream to read from
+     * @param op the opcode of the request
+     * @param firsts the array receiving the first argument
+     * @param seconds the array receiving the second argument
+     * @param index the index of the request in the batch
+     * @throws IOException if the stream fails or the opcode is unknown
+     */
+    private static void readArguments(DataInputStream in, byte op, String[] firsts, String[] seconds, int index)
+            throws IOException {
+        switch (op) {
+            case ADD:
+            case RANGE:
+                firsts[index] = in.readUTF();
+                seconds[index] = in.readUTF();
+                break;
+            case REMOVE:
+            case CONTAINS:
+            case CEILING:
+            case FLOOR:
+                firsts[index] = in.readUTF();
+                break;
+            case FIRST:
+            case LAST:
+                break;
+            default:
+                throw new IOException("Unknown opcode " + op);
+        }
+    }
+
+    /**
+     * Executes a batch of requests against the map, holding the write lock if any
+     * of them modifies the map and the read lock otherwise.
+     *
+     * @param count the number of requests in the batch
+     * @param writes true if any request of the batch modifies the map
+     * @param ops the opcodes of the requests
+     * @param firsts the first arguments of the requests
+     * @param seconds the second arguments of the requests
+     * @param results the array receiving the result of each request
+     */
+    private void execute(int count, boolean writes, byte[] ops, String[] firsts, String[] seconds, Object[] results) {
+        if (writes)
+            lock.writeLock().lock();
+        else
+            lock.readLock().lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                switch (ops[i]) {
+                    case ADD:
+                        results[i] = map.add(firsts[i], seconds[i]);
+                        break;
+                    case REMOVE:
+                        results[i] = map.remove(firsts[i]);
+                        break;
+                    case CONTAINS:
+                        results[i] = map.contains(firsts[i]);
+                        break;
+                    case CEILING:
+                        results[i] = copy(map.ceiling(firsts[i]));
+                        break;
+                    case FLOOR:
+                        results[i] = copy(map.floor(firsts[i]));
+                        break;
+                    case FIRST:
+                        results[i] = copy(map.first());
+                        break;
+                    case LAST:
+                        results[i] = copy(map.last());
+                        break;
+                    default:
+                        ArrayList<MapEntry<String, String>> range = map.rangeScan(firsts[i], seconds[i]);
+                        for (int j = 0; j < range.size(); j++)
+                            range.set(j, copy(range.get(j)));
+                        results[i] = range;
+                }
+            }
+        } finally {
+            if (writes)
+                lock.writeLock().unlock();
+            else
+                lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies an entry so it can be written after the lock is released, when a
+     * later add may already be replacing its value.
+     *
+     * @param entry the entry to copy, or null
+     * @return a copy of the entry, or null if the entry is null
+     */
+    private static MapEntry<String, String> copy(MapEntry<String, String> entry) {
+        return entry == null ? null : new MapEntry<>(entry.getKey(), entry.getValue());
+    }
+
+    /**
+     * Writes the response to a request.
+     *
+     * @param out the stream to write to
+     * @param op the opcode of the request
+     * @param result the result of the request
+     * @throws IOException if the stream fails
+     */
+    @SuppressWarnings("unchecked")
+    private static void writeResult(DataOutputStream out, byte op, Object result) throws IOException {
+        switch (op) {
+            case ADD:
+            case REMOVE:
+            case CONTAINS:
+                out.writeBoolean((Boolean) result);
+                break;
+            case RANGE:
+                ArrayList<MapEntry<String, String>> list = (ArrayList<MapEntry<String, String>>) result;
+                out.writeInt(list.size());
+                for (MapEntry<String, String> entry : list) {
+                    out.writeUTF(entry.getKey());
+                    out.writeUTF(entry.getValue());
+                }
+                break;
+            default:
+                MapEntry<String, String> entry = (MapEntry<String, String>) result;
+                out.writeBoolean(entry != null);
+                if (entry != null) {
+                    out.writeUTF(entry.getKey());
+                    out.writeUTF(entry.getValue());
+                }
+        }
+    }
+
+    /**
+     * Closes a socket, ignoring any error.
+     *
+     * @param socket the socket to close
+     */
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+
+    /**
+     * Runs a server until the process is killed. Connections are accepted on the
+     * main thread, which keeps the JVM alive even when connections are served on
+     * virtual threads, which are always daemon threads.
+     *
+     * @param args the port to listen on (optional, defaults to 7070)
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        TreeMapServer server = new TreeMapServer(port);
+        System.out.println("TreeMapServer listening on localhost:" + server.getPort());
+        server.acceptLoop();
+    }
+}